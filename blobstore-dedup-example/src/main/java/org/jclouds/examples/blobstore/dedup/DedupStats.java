@@ -0,0 +1,145 @@
+package org.jclouds.examples.blobstore.dedup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by {@link DeduplicatingUploader}.
+ *
+ * The "plain upload" baseline used for comparison is one PUT of the full content per logical key,
+ * which is what the S3 and Azure examples do today.
+ */
+public class DedupStats {
+
+    private final AtomicLong logicalObjects = new AtomicLong();
+    private final AtomicLong logicalBytes = new AtomicLong();
+    private final AtomicLong contentPuts = new AtomicLong();
+    private final AtomicLong transferredBytes = new AtomicLong();
+    private final AtomicLong uniqueContents = new AtomicLong();
+    private final AtomicLong uniqueBytes = new AtomicLong();
+    private final AtomicLong pointerPuts = new AtomicLong();
+    private final AtomicLong pointerBytes = new AtomicLong();
+    private final AtomicLong headRequests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong headHits = new AtomicLong();
+
+    void recordLogicalObject(long size) {
+        logicalObjects.incrementAndGet();
+        logicalBytes.addAndGet(size);
+    }
+
+    void recordContentPut(long size) {
+        contentPuts.incrementAndGet();
+        transferredBytes.addAndGet(size);
+    }
+
+    void recordUniqueContent(long size) {
+        uniqueContents.incrementAndGet();
+        uniqueBytes.addAndGet(size);
+    }
+
+    void recordPointerPut(long size) {
+        pointerPuts.incrementAndGet();
+        pointerBytes.addAndGet(size);
+    }
+
+    void recordHeadRequest(boolean hit) {
+        headRequests.incrementAndGet();
+        if (hit) {
+            headHits.incrementAndGet();
+        }
+    }
+
+    void recordCacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    public long getLogicalObjects() {
+        return logicalObjects.get();
+    }
+
+    public long getLogicalBytes() {
+        return logicalBytes.get();
+    }
+
+    public long getContentPuts() {
+        return contentPuts.get();
+    }
+
+    /** Content bytes actually uploaded by this uploader, excluding content that was already stored. */
+    public long getTransferredBytes() {
+        return transferredBytes.get();
+    }
+
+    /** Distinct contents seen by this uploader, whether uploaded or found already stored. */
+    public long getUniqueContents() {
+        return uniqueContents.get();
+    }
+
+    /** Bytes of the distinct contents seen by this uploader, counted once per hash. */
+    public long getUniqueBytes() {
+        return uniqueBytes.get();
+    }
+
+    public long getPointerPuts() {
+        return pointerPuts.get();
+    }
+
+    public long getPointerBytes() {
+        return pointerBytes.get();
+    }
+
+    public long getHeadRequests() {
+        return headRequests.get();
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getHeadHits() {
+        return headHits.get();
+    }
+
+    /**
+     * Logical bytes divided by the bytes of distinct contents (1.0 means no duplicates). Content that was
+     * already stored in the container counts as unique too, so the ratio does not depend on earlier runs.
+     */
+    public double getDedupRatio() {
+        long unique = getUniqueBytes();
+        return unique == 0 ? 1.0 : (double) getLogicalBytes() / unique;
+    }
+
+    /** Content bytes that did not have to be transferred compared to the plain upload baseline. */
+    public long getBytesSaved() {
+        return getLogicalBytes() - getTransferredBytes();
+    }
+
+    /** Content PUTs skipped because the hash was already known from the local cache or a HEAD request. */
+    public long getContentPutsSkipped() {
+        return getCacheHits() + getHeadHits();
+    }
+
+    /** All requests issued by the uploader: content PUTs, pointer PUTs and HEAD checks. */
+    public long getTotalRequests() {
+        return getContentPuts() + getPointerPuts() + getHeadRequests();
+    }
+
+    /**
+     * Requests saved compared to the plain upload baseline (one PUT per logical key).
+     * This can be negative when there are few duplicates, because every new key also needs a pointer.
+     */
+    public long getRequestsSaved() {
+        return getLogicalObjects() - getTotalRequests();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "logicalObjects=%d, logicalBytes=%d, uniqueContents=%d, uniqueBytes=%d, contentPuts=%d, "
+                        + "transferredBytes=%d, pointerPuts=%d, headRequests=%d, cacheHits=%d, headHits=%d, "
+                        + "dedupRatio=%.2f, bytesSaved=%d, requestsSaved=%d",
+                getLogicalObjects(), getLogicalBytes(), getUniqueContents(), getUniqueBytes(), getContentPuts(),
+                getTransferredBytes(), getPointerPuts(),
+                getHeadRequests(), getCacheHits(), getHeadHits(), getDedupRatio(), getBytesSaved(), getRequestsSaved());
+    }
+}
@@ -0,0 +1,156 @@
+package org.jclouds.examples.blobstore.dedup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.FileBackedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Uploads blobs in a content-addressed, deduplicating way using only the portable BlobStore API,
+ * so the same code works against aws-s3, azureblob and transient.
+ *
+ * Each unique content is stored once under {@code content/sha256/<hash>}. The logical key is a small
+ * pointer object whose body is the content key and whose user metadata carries the hash. The content
+ * PUT is skipped when the hash is already in the local cache or a HEAD request finds the content object.
+ */
+public class DeduplicatingUploader {
+
+    public static final String CONTENT_KEY_PREFIX = "content/sha256/";
+
+    // Underscore instead of hyphen: Azure metadata names must be valid C# identifiers
+    public static final String CONTENT_HASH_METADATA = "content_sha256";
+
+    // Content up to this size is buffered in memory while hashing, larger content is spooled to a temp file
+    private static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingUploader.class.getName());
+
+    private final BlobStore blobStore;
+    private final String container;
+    private final int memoryThreshold;
+    private final Set<String> knownHashes = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> writtenPointers = new ConcurrentHashMap<>();
+    private final DedupStats stats = new DedupStats();
+
+    public DeduplicatingUploader(BlobStore blobStore, String container) {
+        this(blobStore, container, DEFAULT_MEMORY_THRESHOLD);
+    }
+
+    public DeduplicatingUploader(BlobStore blobStore, String container, int memoryThreshold) {
+        this.blobStore = checkNotNull(blobStore, "blobStore");
+        this.container = checkNotNull(container, "container");
+        this.memoryThreshold = memoryThreshold;
+    }
+
+    /**
+     * Uploads the content under the given logical key and returns the content-addressed key it points to.
+     * The stream is consumed but not closed.
+     */
+    public String upload(String key, InputStream content) throws IOException {
+        checkNotNull(key, "key");
+        checkNotNull(content, "content");
+        // A pointer under the content namespace would overwrite content other logical keys resolve to
+        checkArgument(!key.startsWith(CONTENT_KEY_PREFIX), "key must not start with %s: %s", CONTENT_KEY_PREFIX, key);
+
+        FileBackedOutputStream buffer = new FileBackedOutputStream(memoryThreshold, true);
+        try {
+            // Hash while streaming so the content is read only once from the caller
+            HashingInputStream hashingStream = new HashingInputStream(Hashing.sha256(), content);
+            long size;
+            try {
+                size = ByteStreams.copy(hashingStream, buffer);
+            } finally {
+                buffer.close();
+            }
+            String hash = hashingStream.hash().toString();
+            String contentKey = contentKey(hash);
+            stats.recordLogicalObject(size);
+
+            if (knownHashes.contains(hash)) {
+                stats.recordCacheHit();
+                logger.debug("Content for " + key + " already known from local cache: " + contentKey);
+            } else if (blobStore.blobExists(container, contentKey)) {
+                stats.recordHeadRequest(true);
+                if (knownHashes.add(hash)) {
+                    stats.recordUniqueContent(size);
+                }
+                logger.debug("Content for " + key + " already stored: " + contentKey);
+            } else {
+                stats.recordHeadRequest(false);
+                Blob contentBlob = blobStore.blobBuilder(contentKey)
+                        .payload(buffer.asByteSource())
+                        .contentLength(size)
+                        .build();
+                blobStore.putBlob(container, contentBlob);
+                if (knownHashes.add(hash)) {
+                    stats.recordUniqueContent(size);
+                }
+                stats.recordContentPut(size);
+                logger.debug("Stored new content for " + key + ": " + contentKey);
+            }
+
+            // Re-uploading the same content under the same key does not need a new pointer
+            if (!hash.equals(writtenPointers.get(key))) {
+                byte[] pointer = contentKey.getBytes(StandardCharsets.UTF_8);
+                Blob pointerBlob = blobStore.blobBuilder(key)
+                        .payload(pointer)
+                        .contentType("text/plain")
+                        .userMetadata(ImmutableMap.of(CONTENT_HASH_METADATA, hash))
+                        .build();
+                blobStore.putBlob(container, pointerBlob);
+                writtenPointers.put(key, hash);
+                stats.recordPointerPut(pointer.length);
+            }
+            return contentKey;
+        } finally {
+            buffer.reset();
+        }
+    }
+
+    /**
+     * Resolves a logical key to its content-addressed key with a HEAD request on the pointer,
+     * or returns null if the pointer does not exist or was not written by this uploader.
+     */
+    public String resolve(String key) {
+        BlobMetadata pointer = blobStore.blobMetadata(container, key);
+        if (pointer == null) {
+            return null;
+        }
+        String hash = pointer.getUserMetadata().get(CONTENT_HASH_METADATA);
+        return hash == null ? null : contentKey(hash);
+    }
+
+    /**
+     * Downloads the content a logical key points to, or returns null if it cannot be resolved.
+     */
+    public Blob getContent(String key) {
+        String contentKey = resolve(key);
+        return contentKey == null ? null : blobStore.getBlob(container, contentKey);
+    }
+
+    public DedupStats getStats() {
+        return stats;
+    }
+
+    public static String contentKey(String hash) {
+        return CONTENT_KEY_PREFIX + hash;
+    }
+}
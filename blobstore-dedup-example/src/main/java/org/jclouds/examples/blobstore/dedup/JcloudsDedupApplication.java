@@ -0,0 +1,112 @@
+package org.jclouds.examples.blobstore.dedup;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
+
+import com.google.inject.Module;
+import com.google.common.collect.ImmutableSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class JcloudsDedupApplication {
+
+    // Synthetic corpus: many logical keys drawn from a smaller set of unique contents
+    private static final int LOGICAL_OBJECTS = 500;
+    private static final int UNIQUE_CONTENTS = 50;
+    private static final int MIN_CONTENT_SIZE = 4 * 1024;
+    private static final int MAX_CONTENT_SIZE = 256 * 1024;
+    private static final long SEED = 42L;
+
+    private static final Logger logger = LoggerFactory.getLogger(JcloudsDedupApplication.class.getName());
+
+    public static void main(String[] args) {
+        logger.info("Running Jclouds deduplicating upload example...");
+
+        try {
+            // The provider is a parameter here, this example only uses the portable BlobStore API
+            String provider = args.length > 0 ? args[0] : "transient";
+            String containerName = args.length > 1 ? args[1] : "jclouds-dedup-playground";
+
+            logger.info("=== Deduplicating Upload Configuration ===");
+            logger.info("- Provider: " + provider);
+            logger.info("- Container: " + containerName);
+            logger.info("- Logical objects: " + LOGICAL_OBJECTS);
+            logger.info("- Unique contents: " + UNIQUE_CONTENTS);
+            logger.info("==========================================");
+
+            ContextBuilder contextBuilder = ContextBuilder.newBuilder(provider)
+                .modules(ImmutableSet.<Module>of(new SLF4JLoggingModule()));
+
+            // Azure Blob Storage accepts explicit account credentials, otherwise ambient credentials are used
+            String accountName = System.getenv("AZURE_STORAGE_ACCOUNT");
+            String accountKey = System.getenv("AZURE_STORAGE_KEY");
+            if (provider.equals("azureblob") && accountName != null && !accountName.isEmpty() &&
+                    accountKey != null && !accountKey.isEmpty()) {
+                contextBuilder.credentials(accountName, accountKey);
+            }
+
+            BlobStoreContext blobStoreContext = contextBuilder.buildView(BlobStoreContext.class);
+            BlobStore blobStore = blobStoreContext.getBlobStore();
+
+            logger.info("Checking if container exists: " + containerName);
+            if (!blobStore.containerExists(containerName)) {
+                logger.info("Creating container: " + containerName);
+                blobStore.createContainerInLocation(null, containerName);
+            } else {
+                logger.info("Using existing container: " + containerName);
+            }
+
+            Random random = new Random(SEED);
+            List<byte[]> contents = new ArrayList<>();
+            for (int i = 0; i < UNIQUE_CONTENTS; i++) {
+                byte[] content = new byte[MIN_CONTENT_SIZE + random.nextInt(MAX_CONTENT_SIZE - MIN_CONTENT_SIZE)];
+                random.nextBytes(content);
+                contents.add(content);
+            }
+
+            logger.info("Uploading synthetic corpus...");
+            DeduplicatingUploader uploader = new DeduplicatingUploader(blobStore, containerName);
+            long start = System.nanoTime();
+            for (int i = 0; i < LOGICAL_OBJECTS; i++) {
+                byte[] content = contents.get(random.nextInt(UNIQUE_CONTENTS));
+                uploader.upload("jclouds/dedup/object-" + i + ".bin", new ByteArrayInputStream(content));
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            DedupStats stats = uploader.getStats();
+            logger.info("=== Deduplication Report ===");
+            logger.info("- Logical objects: " + stats.getLogicalObjects());
+            logger.info("- Logical bytes: " + stats.getLogicalBytes());
+            logger.info("- Unique contents: " + stats.getUniqueContents() + " (" + stats.getUniqueBytes() + " bytes)");
+            logger.info("- Content PUTs: " + stats.getContentPuts());
+            logger.info("- Content bytes transferred: " + stats.getTransferredBytes());
+            logger.info("- Pointer bytes: " + stats.getPointerBytes());
+            logger.info(String.format("- Dedup ratio: %.2f", stats.getDedupRatio()));
+            logger.info("- Bytes saved: " + stats.getBytesSaved());
+            logger.info("- Content PUTs skipped: " + stats.getContentPutsSkipped()
+                    + " (local cache: " + stats.getCacheHits() + ", HEAD: " + stats.getHeadHits() + ")");
+            logger.info("- Requests: " + stats.getTotalRequests() + " (plain upload: " + stats.getLogicalObjects()
+                    + ", saved: " + stats.getRequestsSaved() + ")");
+            logger.info("- Upload time: " + elapsedMillis + " ms");
+            logger.info("============================");
+
+            // Verify that a logical key resolves to its content
+            String sampleKey = "jclouds/dedup/object-0.bin";
+            logger.info("Resolving logical key: " + sampleKey + " -> " + uploader.resolve(sampleKey));
+
+            blobStoreContext.close();
+            logger.info("Jclouds deduplicating upload example completed successfully!");
+        } catch (Exception e) {
+            logger.error("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
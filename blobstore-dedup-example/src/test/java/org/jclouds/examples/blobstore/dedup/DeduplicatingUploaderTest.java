@@ -0,0 +1,179 @@
+package org.jclouds.examples.blobstore.dedup;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.examples.blobstore.simulation.LatencyDistribution;
+import org.jclouds.examples.blobstore.simulation.SimulatedBlobStore;
+import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
+
+import com.google.inject.Module;
+import com.google.common.collect.ImmutableSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public class DeduplicatingUploaderTest {
+
+    private static final String PROVIDER = "transient"; // In-memory jclouds provider, no Docker needed
+
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingUploaderTest.class.getName());
+
+    @Test
+    public void testDeduplicatingUploadWithTransient() throws Exception {
+        logger.info("Running Jclouds deduplicating upload test...");
+
+        BlobStoreContext blobStoreContext = ContextBuilder.newBuilder(PROVIDER)
+                .modules(ImmutableSet.<Module>of(new SLF4JLoggingModule()))
+                .buildView(BlobStoreContext.class);
+        try {
+            BlobStore blobStore = blobStoreContext.getBlobStore();
+            String containerName = "testcontainer";
+            blobStore.createContainerInLocation(null, containerName);
+
+            byte[] hello = "Hello, deduplicated jclouds!".getBytes(StandardCharsets.UTF_8);
+            byte[] other = "Some other content".getBytes(StandardCharsets.UTF_8);
+
+            DeduplicatingUploader uploader = new DeduplicatingUploader(blobStore, containerName);
+            String first = uploader.upload("a/hello.txt", new ByteArrayInputStream(hello));
+            String second = uploader.upload("b/hello-copy.txt", new ByteArrayInputStream(hello));
+            String third = uploader.upload("c/other.txt", new ByteArrayInputStream(other));
+
+            // Identical content maps to the same content-addressed key
+            assertEquals(first, second);
+            assertNotEquals("Different content should get a different key", first, third);
+            assertEquals(first, uploader.resolve("b/hello-copy.txt"));
+
+            Blob downloaded = uploader.getContent("b/hello-copy.txt");
+            assertNotNull("Content should be resolvable through the pointer", downloaded);
+            assertArrayEquals(hello, downloaded.getPayload().openStream().readAllBytes());
+
+            DedupStats stats = uploader.getStats();
+            logger.info("Stats: " + stats);
+            assertEquals(3, stats.getLogicalObjects());
+            assertEquals(2, stats.getContentPuts());
+            assertEquals(3, stats.getPointerPuts());
+            assertEquals(1, stats.getCacheHits());
+            assertEquals(2, stats.getUniqueContents());
+            assertEquals(hello.length + other.length, stats.getTransferredBytes());
+            assertEquals(hello.length, stats.getBytesSaved());
+            assertEquals((double) (2 * hello.length + other.length) / (hello.length + other.length),
+                    stats.getDedupRatio(), 1e-9);
+
+            // A fresh uploader has an empty cache, so it finds existing content with a HEAD request
+            DeduplicatingUploader freshUploader = new DeduplicatingUploader(blobStore, containerName);
+            freshUploader.upload("d/hello-again.txt", new ByteArrayInputStream(hello));
+            freshUploader.upload("e/hello-once-more.txt", new ByteArrayInputStream(hello));
+            DedupStats freshStats = freshUploader.getStats();
+            assertEquals(0, freshStats.getContentPuts());
+            assertEquals(1, freshStats.getHeadHits());
+            assertEquals(1, freshStats.getCacheHits());
+            assertEquals(0, freshStats.getTransferredBytes());
+            assertEquals(1, freshStats.getUniqueContents());
+            assertEquals(2.0, freshStats.getDedupRatio(), 1e-9);
+
+            // Re-uploading unchanged content under the same key issues no requests at all
+            long requestsBefore = uploader.getStats().getTotalRequests();
+            uploader.upload("a/hello.txt", new ByteArrayInputStream(hello));
+            assertEquals(requestsBefore, uploader.getStats().getTotalRequests());
+        } finally {
+            blobStoreContext.close();
+        }
+        logger.info("Jclouds deduplicating upload test completed successfully!");
+    }
+
+    @Test
+    public void testKeyInContentNamespaceIsRejected() throws Exception {
+        logger.info("Running Jclouds deduplicating upload key validation test...");
+
+        BlobStoreContext blobStoreContext = ContextBuilder.newBuilder(PROVIDER)
+                .modules(ImmutableSet.<Module>of(new SLF4JLoggingModule()))
+                .buildView(BlobStoreContext.class);
+        try {
+            BlobStore blobStore = blobStoreContext.getBlobStore();
+            String containerName = "testcontainer";
+            blobStore.createContainerInLocation(null, containerName);
+
+            byte[] hello = "Hello, deduplicated jclouds!".getBytes(StandardCharsets.UTF_8);
+            DeduplicatingUploader uploader = new DeduplicatingUploader(blobStore, containerName);
+            String contentKey = uploader.upload("a/hello.txt", new ByteArrayInputStream(hello));
+
+            try {
+                uploader.upload(contentKey, new ByteArrayInputStream("overwrite".getBytes(StandardCharsets.UTF_8)));
+                fail("Keys in the content namespace should be rejected");
+            } catch (IllegalArgumentException e) {
+                logger.info("Rejected as expected: " + e.getMessage());
+            }
+
+            // The content object is untouched and still resolvable through the pointer
+            Blob downloaded = uploader.getContent("a/hello.txt");
+            assertNotNull("Content should be resolvable through the pointer", downloaded);
+            assertArrayEquals(hello, downloaded.getPayload().openStream().readAllBytes());
+        } finally {
+            blobStoreContext.close();
+        }
+    }
+
+    @Test
+    public void testDeduplicatingUploadWithSimulatedNetwork() throws Exception {
+        logger.info("Running Jclouds deduplicating upload simulated network test...");
+
+        BlobStoreContext blobStoreContext = ContextBuilder.newBuilder(PROVIDER)
+                .modules(ImmutableSet.<Module>of(new SLF4JLoggingModule()))
+                .buildView(BlobStoreContext.class);
+        try {
+            BlobStore transientBlobStore = blobStoreContext.getBlobStore();
+            transientBlobStore.createContainerInLocation(null, "plain");
+            transientBlobStore.createContainerInLocation(null, "dedup");
+
+            byte[] content = new byte[256 * 1024];
+            int copies = 20;
+
+            // Same simulated network for both runs, delays are recorded instead of slept
+            SimulatedBlobStore plainStore = simulatedStore(transientBlobStore);
+            for (int i = 0; i < copies; i++) {
+                plainStore.putBlob("plain", plainStore.blobBuilder("copy-" + i + ".bin").payload(content).build());
+            }
+
+            SimulatedBlobStore dedupStore = simulatedStore(transientBlobStore);
+            DeduplicatingUploader uploader = new DeduplicatingUploader(dedupStore, "dedup");
+            for (int i = 0; i < copies; i++) {
+                uploader.upload("copy-" + i + ".bin", new ByteArrayInputStream(content));
+            }
+
+            logger.info("Plain upload: " + plainStore.getRequestCount() + " requests, "
+                    + plainStore.getInjectedDelay().toMillis() + " ms simulated");
+            logger.info("Dedup upload: " + dedupStore.getRequestCount() + " requests, "
+                    + dedupStore.getInjectedDelay().toMillis() + " ms simulated");
+
+            // One HEAD and one content PUT, then one pointer PUT per copy
+            assertEquals(copies + 2, dedupStore.getRequestCount());
+            assertTrue("Deduplicated upload should spend less simulated time",
+                    dedupStore.getInjectedDelay().compareTo(plainStore.getInjectedDelay()) < 0);
+        } finally {
+            blobStoreContext.close();
+        }
+        logger.info("Jclouds deduplicating upload simulated network test completed successfully!");
+    }
+
+    private static SimulatedBlobStore simulatedStore(BlobStore delegate) {
+        return SimulatedBlobStore.builder(delegate)
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(20)))
+                .bytesPerSecond(10L * 1024 * 1024)
+                .sleeper(nanos -> { })
+                .build();
+    }
+}
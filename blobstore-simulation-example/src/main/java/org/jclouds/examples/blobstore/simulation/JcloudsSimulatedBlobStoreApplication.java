@@ -0,0 +1,131 @@
+package org.jclouds.examples.blobstore.simulation;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
+
+import com.google.inject.Module;
+import com.google.common.collect.ImmutableSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class JcloudsSimulatedBlobStoreApplication {
+
+    // The in-memory jclouds provider decorated with simulated network behaviour
+    private static final String PROVIDER = "transient";
+
+    private static final int OBJECT_COUNT = 200;
+    private static final int OBJECT_SIZE = 64 * 1024;
+    private static final int MAX_ATTEMPTS = 5;
+
+    private static final Logger logger = LoggerFactory.getLogger(JcloudsSimulatedBlobStoreApplication.class.getName());
+
+    public static void main(String[] args) {
+        logger.info("Running Jclouds simulated BlobStore example...");
+
+        try {
+            String containerName = args.length > 0 ? args[0] : "jclouds-playground";
+
+            // Roughly a remote object store seen from a nearby VM
+            Duration medianLatency = Duration.ofMillis(20);
+            long bytesPerSecond = 20L * 1024 * 1024;
+            double throttleProbability = 0.01;
+            int maxPageSize = 50;
+
+            logger.info("=== Simulated BlobStore Configuration ===");
+            logger.info("- Provider: " + PROVIDER);
+            logger.info("- Container: " + containerName);
+            logger.info("- Median latency: " + medianLatency.toMillis() + " ms (log-normal)");
+            logger.info("- Bandwidth per connection: " + bytesPerSecond + " bytes/s");
+            logger.info("- Throttling probability: " + throttleProbability);
+            logger.info("- Listing page size: " + maxPageSize);
+            logger.info("=========================================");
+
+            BlobStoreContext blobStoreContext = ContextBuilder.newBuilder(PROVIDER)
+                .modules(ImmutableSet.<Module>of(new SLF4JLoggingModule()))
+                .buildView(BlobStoreContext.class);
+            SimulatedBlobStore blobStore = SimulatedBlobStore.builder(blobStoreContext.getBlobStore())
+                    .latency(LatencyDistribution.logNormal(medianLatency, 0.5))
+                    .bytesPerSecond(bytesPerSecond)
+                    .throttleProbability(throttleProbability)
+                    .maxPageSize(maxPageSize)
+                    .build();
+
+            long start = System.nanoTime();
+            withRetry(() -> blobStore.createContainerInLocation(null, containerName));
+
+            logger.info("Uploading " + OBJECT_COUNT + " objects of " + OBJECT_SIZE + " bytes...");
+            Random random = new Random(42L);
+            for (int i = 0; i < OBJECT_COUNT; i++) {
+                byte[] content = new byte[OBJECT_SIZE];
+                random.nextBytes(content);
+                Blob blob = blobStore.blobBuilder("jclouds/object-" + i + ".bin")
+                        .payload(content)
+                        .build();
+                withRetry(() -> blobStore.putBlob(containerName, blob));
+            }
+
+            // Listings are paged, so follow the marker until all objects are seen
+            logger.info("Listing objects...");
+            int listed = 0;
+            int pages = 0;
+            String marker = null;
+            do {
+                ListContainerOptions options = ListContainerOptions.Builder.recursive();
+                if (marker != null) {
+                    options.afterMarker(marker);
+                }
+                PageSet<? extends StorageMetadata> page = withRetry(() -> blobStore.list(containerName, options));
+                listed += page.size();
+                pages++;
+                marker = page.getNextMarker();
+            } while (marker != null);
+            logger.info("Listed " + listed + " objects in " + pages + " pages");
+
+            logger.info("Downloading objects...");
+            for (int i = 0; i < OBJECT_COUNT; i += 10) {
+                String name = "jclouds/object-" + i + ".bin";
+                Blob downloaded = withRetry(() -> blobStore.getBlob(containerName, name));
+                downloaded.getPayload().openStream().readAllBytes();
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            logger.info("=== Simulation Report ===");
+            logger.info("- Requests: " + blobStore.getRequestCount());
+            logger.info("- Throttled requests: " + blobStore.getThrottledRequestCount());
+            logger.info("- Injected delay: " + blobStore.getInjectedDelay().toMillis() + " ms");
+            logger.info("- Elapsed time: " + elapsedMillis + " ms");
+            logger.info("=========================");
+
+            blobStoreContext.close();
+            logger.info("Jclouds simulated BlobStore example completed successfully!");
+        } catch (Exception e) {
+            logger.error("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Retries requests that were throttled with HTTP 503, like the real providers' retry handlers do
+    private static <T> T withRetry(Supplier<T> request) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return request.get();
+            } catch (HttpResponseException e) {
+                if (e.getResponse() == null || e.getResponse().getStatusCode() != 503 || attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                logger.info("Request throttled, retrying (attempt " + attempt + "): " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.jclouds.examples.blobstore.simulation;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Per-request latency (time to first byte) injected by {@link SimulatedBlobStore}.
+ * Samples are drawn from the store's seeded {@link Random}, so a single-threaded run is reproducible.
+ */
+public interface LatencyDistribution {
+
+    Duration sample(Random random);
+
+    static LatencyDistribution none() {
+        return random -> Duration.ZERO;
+    }
+
+    static LatencyDistribution fixed(Duration latency) {
+        checkNotNull(latency, "latency");
+        checkArgument(!latency.isNegative(), "latency must not be negative");
+        return random -> latency;
+    }
+
+    static LatencyDistribution uniform(Duration min, Duration max) {
+        checkNotNull(min, "min");
+        checkNotNull(max, "max");
+        checkArgument(!min.isNegative() && min.compareTo(max) <= 0, "expected 0 <= min <= max");
+        long rangeNanos = max.minus(min).toNanos();
+        return random -> min.plusNanos((long) (random.nextDouble() * rangeNanos));
+    }
+
+    /**
+     * Log-normal latency with the given median. A sigma around 0.5 gives the long tail typical for object stores.
+     */
+    static LatencyDistribution logNormal(Duration median, double sigma) {
+        checkNotNull(median, "median");
+        checkArgument(!median.isNegative(), "median must not be negative");
+        checkArgument(sigma >= 0, "sigma must not be negative");
+        long medianNanos = median.toNanos();
+        return random -> Duration.ofNanos((long) (medianNanos * Math.exp(sigma * random.nextGaussian())));
+    }
+}
@@ -0,0 +1,569 @@
+package org.jclouds.examples.blobstore.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.KeyNotFoundException;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.internal.BlobImpl;
+import org.jclouds.blobstore.domain.internal.MutableBlobMetadataImpl;
+import org.jclouds.blobstore.options.CopyOptions;
+import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.domain.Location;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.io.Payload;
+import org.jclouds.io.internal.BasePayloadSlicer;
+
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * BlobStore decorator that makes an in-process store (typically the "transient" provider) behave like a
+ * remote object store, so performance work can be tested without Docker or a cloud account.
+ *
+ * Per request it injects a latency sampled from a {@link LatencyDistribution} and, with a configurable
+ * probability, fails with an HTTP 503 "Slow Down" error like S3 and Azure do when throttling. Blob
+ * transfers are capped to a bandwidth per connection and container listings are capped to a page size,
+ * so callers have to follow the next marker like against a real provider.
+ *
+ * Container, listing, blob transfer, bulk delete and multipart methods are simulated. Directory, access
+ * control, blob counting and location methods are passed through without any simulated cost.
+ * With a fixed seed and a recording {@link Sleeper}, a single-threaded run is fully deterministic.
+ */
+public class SimulatedBlobStore extends ForwardingBlobStore {
+
+    /** Applies the injected delays. Tests can replace it to record delays instead of sleeping. */
+    public interface Sleeper {
+        void sleepNanos(long nanos);
+    }
+
+    public static final Sleeper REAL_SLEEPER = nanos -> Uninterruptibles.sleepUninterruptibly(nanos, TimeUnit.NANOSECONDS);
+
+    // Maximum number of keys per bulk delete request, as for S3 DeleteObjects
+    static final int BULK_DELETE_BATCH_SIZE = 1000;
+
+    // Range size of parallel downloads, each range is fetched over its own simulated connection
+    static final long PARALLEL_DOWNLOAD_PART_SIZE = 8L * 1024 * 1024;
+
+    // Default part size of multipart putBlob, as used by jclouds' own slicing algorithm
+    static final long DEFAULT_MULTIPART_PART_SIZE = 32L * 1024 * 1024;
+
+    private final LatencyDistribution latency;
+    private final long bytesPerSecond;
+    private final double throttleProbability;
+    private final int maxPageSize;
+    private final long multipartPartSize;
+    private final Random random;
+    private final Sleeper sleeper;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final AtomicLong injectedNanos = new AtomicLong();
+
+    private SimulatedBlobStore(Builder builder) {
+        super(builder.delegate);
+        this.latency = builder.latency;
+        this.bytesPerSecond = builder.bytesPerSecond;
+        this.throttleProbability = builder.throttleProbability;
+        this.maxPageSize = builder.maxPageSize;
+        this.multipartPartSize = builder.multipartPartSize;
+        this.random = new Random(builder.seed);
+        Sleeper targetSleeper = builder.sleeper;
+        this.sleeper = nanos -> {
+            injectedNanos.addAndGet(nanos);
+            targetSleeper.sleepNanos(nanos);
+        };
+    }
+
+    public static Builder builder(BlobStore delegate) {
+        return new Builder(delegate);
+    }
+
+    /** Number of simulated requests, including throttled ones. */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getThrottledRequestCount() {
+        return throttledRequests.get();
+    }
+
+    /** Total latency and transfer delay injected so far, independent of the {@link Sleeper} used. */
+    public Duration getInjectedDelay() {
+        return Duration.ofNanos(injectedNanos.get());
+    }
+
+    @Override
+    public boolean containerExists(String container) {
+        simulateRequest("HEAD container " + container);
+        return super.containerExists(container);
+    }
+
+    @Override
+    public boolean createContainerInLocation(Location location, String container) {
+        simulateRequest("PUT container " + container);
+        return super.createContainerInLocation(location, container);
+    }
+
+    @Override
+    public boolean createContainerInLocation(Location location, String container, CreateContainerOptions options) {
+        simulateRequest("PUT container " + container);
+        return super.createContainerInLocation(location, container, options);
+    }
+
+    @Override
+    public void deleteContainer(String container) {
+        simulateRequest("DELETE container " + container);
+        super.deleteContainer(container);
+    }
+
+    @Override
+    public boolean deleteContainerIfEmpty(String container) {
+        simulateRequest("DELETE container " + container);
+        return super.deleteContainerIfEmpty(container);
+    }
+
+    // Clearing is charged as a single request, like a server-side bulk operation
+    @Override
+    public void clearContainer(String container) {
+        simulateRequest("CLEAR container " + container);
+        super.clearContainer(container);
+    }
+
+    @Override
+    public void clearContainer(String container, ListContainerOptions options) {
+        simulateRequest("CLEAR container " + container);
+        super.clearContainer(container, options);
+    }
+
+    @Override
+    public PageSet<? extends StorageMetadata> list() {
+        simulateRequest("LIST containers");
+        return super.list();
+    }
+
+    @Override
+    public PageSet<? extends StorageMetadata> list(String container) {
+        return list(container, ListContainerOptions.NONE);
+    }
+
+    @Override
+    public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+        simulateRequest("LIST container " + container);
+        return super.list(container, capPageSize(options));
+    }
+
+    @Override
+    public boolean blobExists(String container, String name) {
+        simulateRequest("HEAD " + container + "/" + name);
+        return super.blobExists(container, name);
+    }
+
+    @Override
+    public BlobMetadata blobMetadata(String container, String name) {
+        simulateRequest("HEAD " + container + "/" + name);
+        return super.blobMetadata(container, name);
+    }
+
+    @Override
+    public String putBlob(String container, Blob blob) {
+        simulateRequest("PUT " + container + "/" + blob.getMetadata().getName());
+        Blob throttled = throttleUpload(blob);
+        try {
+            return super.putBlob(container, throttled);
+        } finally {
+            releaseIfWrapped(blob, throttled);
+        }
+    }
+
+    @Override
+    public String putBlob(String container, Blob blob, PutOptions options) {
+        if (options.isMultipart()) {
+            return putMultipartBlob(container, blob, options);
+        }
+        simulateRequest("PUT " + container + "/" + blob.getMetadata().getName());
+        Blob throttled = throttleUpload(blob);
+        try {
+            return super.putBlob(container, throttled, options);
+        } finally {
+            releaseIfWrapped(blob, throttled);
+        }
+    }
+
+    /**
+     * Uploads the blob through this store's own multipart methods, so every part is charged as a separate
+     * request with its own transfer. Parts are uploaded one after the other over a single connection.
+     */
+    private String putMultipartBlob(String container, Blob blob, PutOptions options) {
+        Payload payload = blob.getPayload();
+        long partSize = Math.max(multipartPartSize, getMinimumMultipartPartSize());
+        Long contentLength = payload.getContentMetadata().getContentLength();
+        if (contentLength != null) {
+            int maxParts = getMaximumNumberOfParts();
+            partSize = Math.max(partSize, (contentLength + maxParts - 1) / maxParts);
+        }
+        MultipartUpload mpu = initiateMultipartUpload(container, blob.getMetadata(), options);
+        try {
+            List<MultipartPart> parts = new ArrayList<>();
+            int partNumber = 1;
+            for (Payload part : new BasePayloadSlicer().slice(payload, partSize)) {
+                parts.add(uploadMultipartPart(mpu, partNumber++, part));
+            }
+            return completeMultipartUpload(mpu, parts);
+        } catch (RuntimeException e) {
+            try {
+                abortMultipartUpload(mpu);
+            } catch (RuntimeException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        } finally {
+            payload.release();
+        }
+    }
+
+    @Override
+    public String copyBlob(String fromContainer, String fromName, String toContainer, String toName,
+            CopyOptions options) {
+        // Server-side copy, no payload crosses the connection
+        simulateRequest("COPY " + fromContainer + "/" + fromName);
+        return super.copyBlob(fromContainer, fromName, toContainer, toName, options);
+    }
+
+    @Override
+    public Blob getBlob(String container, String name) {
+        simulateRequest("GET " + container + "/" + name);
+        return throttleDownload(super.getBlob(container, name));
+    }
+
+    @Override
+    public Blob getBlob(String container, String name, GetOptions options) {
+        simulateRequest("GET " + container + "/" + name);
+        return throttleDownload(super.getBlob(container, name, options));
+    }
+
+    @Override
+    public void downloadBlob(String container, String name, File destination) {
+        Blob blob = getBlob(container, name);
+        if (blob == null) {
+            throw new KeyNotFoundException(container, name, "while downloading blob");
+        }
+        try (InputStream in = blob.getPayload().openStream();
+                FileChannel channel = FileChannel.open(destination.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(in, channel, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Downloads the blob in ranges of {@link #PARALLEL_DOWNLOAD_PART_SIZE} on the given executor. Each range is
+     * a separate simulated GET with its own bandwidth cap, so parallelism pays off like against a real provider.
+     */
+    @Override
+    public void downloadBlob(String container, String name, File destination, ExecutorService executor) {
+        BlobMetadata metadata = blobMetadata(container, name);
+        if (metadata == null) {
+            throw new KeyNotFoundException(container, name, "while downloading blob");
+        }
+        long size = metadata.getContentMetadata().getContentLength();
+        Throwable failure = null;
+        try (FileChannel channel = FileChannel.open(destination.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<Future<?>> parts = new ArrayList<>();
+            for (long start = 0; start < size; start += PARALLEL_DOWNLOAD_PART_SIZE) {
+                long partStart = start;
+                long partEnd = Math.min(start + PARALLEL_DOWNLOAD_PART_SIZE, size) - 1;
+                parts.add(executor.submit(() -> {
+                    Blob part = getBlob(container, name, GetOptions.Builder.range(partStart, partEnd));
+                    if (part == null) {
+                        throw new KeyNotFoundException(container, name, "while downloading blob");
+                    }
+                    try (InputStream in = part.getPayload().openStream()) {
+                        writeFully(in, channel, partStart);
+                    }
+                    return null;
+                }));
+            }
+            // Wait for every part, even after a failure, so no part writes to the channel after it is closed
+            for (Future<?> part : parts) {
+                try {
+                    Uninterruptibles.getUninterruptibly(part);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            failure = failure == null ? e : failure;
+        }
+        if (failure != null) {
+            // Do not leave a partially written file behind
+            destination.delete();
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof IOException) {
+                throw new UncheckedIOException((IOException) failure);
+            }
+            throw new RuntimeException(failure);
+        }
+    }
+
+    @Override
+    public InputStream streamBlob(String container, String name) {
+        Blob blob = getBlob(container, name);
+        if (blob == null) {
+            throw new KeyNotFoundException(container, name, "while streaming blob");
+        }
+        try {
+            return blob.getPayload().openStream();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The stream is read sequentially, so it is simulated over a single connection
+    @Override
+    public InputStream streamBlob(String container, String name, ExecutorService executor) {
+        return streamBlob(container, name);
+    }
+
+    @Override
+    public void removeBlob(String container, String name) {
+        simulateRequest("DELETE " + container + "/" + name);
+        super.removeBlob(container, name);
+    }
+
+    @Override
+    public void removeBlobs(String container, Iterable<String> names) {
+        for (List<String> batch : Iterables.partition(names, BULK_DELETE_BATCH_SIZE)) {
+            simulateRequest("DELETE " + batch.size() + " blobs in " + container);
+            super.removeBlobs(container, batch);
+        }
+    }
+
+    @Override
+    public MultipartUpload initiateMultipartUpload(String container, BlobMetadata blob, PutOptions options) {
+        simulateRequest("POST multipart " + container + "/" + blob.getName());
+        return super.initiateMultipartUpload(container, blob, options);
+    }
+
+    @Override
+    public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+        simulateRequest("PUT part " + partNumber + " " + mpu.containerName() + "/" + mpu.blobName());
+        return super.uploadMultipartPart(mpu, partNumber, throttleUpload(payload));
+    }
+
+    @Override
+    public void abortMultipartUpload(MultipartUpload mpu) {
+        simulateRequest("DELETE multipart " + mpu.containerName() + "/" + mpu.blobName());
+        super.abortMultipartUpload(mpu);
+    }
+
+    @Override
+    public List<MultipartPart> listMultipartUpload(MultipartUpload mpu) {
+        simulateRequest("LIST parts " + mpu.containerName() + "/" + mpu.blobName());
+        return super.listMultipartUpload(mpu);
+    }
+
+    @Override
+    public List<MultipartUpload> listMultipartUploads(String container) {
+        simulateRequest("LIST multipart uploads " + container);
+        return super.listMultipartUploads(container);
+    }
+
+    @Override
+    public String completeMultipartUpload(MultipartUpload mpu, List<MultipartPart> parts) {
+        simulateRequest("POST complete " + mpu.containerName() + "/" + mpu.blobName());
+        return super.completeMultipartUpload(mpu, parts);
+    }
+
+    private void simulateRequest(String request) {
+        requests.incrementAndGet();
+        boolean throttled = throttleProbability > 0 && random.nextDouble() < throttleProbability;
+        sleeper.sleepNanos(latency.sample(random).toNanos());
+        if (throttled) {
+            throttledRequests.incrementAndGet();
+            HttpResponse response = HttpResponse.builder()
+                    .statusCode(503)
+                    .message("Slow Down")
+                    .build();
+            throw new HttpResponseException("Simulated throttling of request: " + request, null, response);
+        }
+    }
+
+    // The caller's payload is released here because the delegate only saw the throttled copy
+    private static void releaseIfWrapped(Blob blob, Blob throttled) {
+        if (throttled != blob) {
+            blob.getPayload().release();
+        }
+    }
+
+    // Releasing the returned payload releases the delegate's payload, like for an unwrapped download
+    private Blob throttleDownload(Blob blob) {
+        if (blob == null || bytesPerSecond <= 0) {
+            return blob;
+        }
+        return withPayload(blob, new ThrottledPayload(blob.getPayload(), bytesPerSecond, sleeper));
+    }
+
+    // The delegate reads the upload through the throttled stream, so payloads without a length are capped too
+    private Blob throttleUpload(Blob blob) {
+        if (bytesPerSecond <= 0) {
+            return blob;
+        }
+        return withPayload(blob, new ThrottledPayload(blob.getPayload(), bytesPerSecond, sleeper));
+    }
+
+    private Payload throttleUpload(Payload payload) {
+        return bytesPerSecond <= 0 ? payload : new ThrottledPayload(payload, bytesPerSecond, sleeper);
+    }
+
+    // Builds a new blob instead of calling setPayload on the original, which would release its payload
+    private static Blob withPayload(Blob blob, Payload payload) {
+        Blob copy = new BlobImpl(new MutableBlobMetadataImpl(blob.getMetadata()));
+        copy.setPayload(payload);
+        copy.setAllHeaders(blob.getAllHeaders());
+        return copy;
+    }
+
+    private static void writeFully(InputStream in, FileChannel channel, long position) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, n);
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+        }
+    }
+
+    // Works on a copy, the caller's options may be reused for other stores
+    private ListContainerOptions capPageSize(ListContainerOptions options) {
+        Integer maxResults = options.getMaxResults();
+        if (maxPageSize <= 0 || maxResults != null && maxResults <= maxPageSize) {
+            return options;
+        }
+        ListContainerOptions capped = new ListContainerOptions();
+        if (options.getDir() != null) {
+            capped.inDirectory(options.getDir());
+        }
+        if (options.getPrefix() != null) {
+            capped.prefix(options.getPrefix());
+        }
+        if (options.getDelimiter() != null) {
+            capped.delimiter(options.getDelimiter());
+        }
+        if (options.isRecursive()) {
+            capped.recursive();
+        }
+        if (options.isDetailed()) {
+            capped.withDetails();
+        }
+        if (options.getMarker() != null) {
+            capped.afterMarker(options.getMarker());
+        }
+        return capped.maxResults(maxPageSize);
+    }
+
+    static long transferNanos(long bytes, long bytesPerSecond) {
+        return (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+    }
+
+    public static class Builder {
+
+        private final BlobStore delegate;
+        private LatencyDistribution latency = LatencyDistribution.none();
+        private long bytesPerSecond;
+        private double throttleProbability;
+        private int maxPageSize;
+        private long multipartPartSize = DEFAULT_MULTIPART_PART_SIZE;
+        private long seed = 42L;
+        private Sleeper sleeper = REAL_SLEEPER;
+
+        private Builder(BlobStore delegate) {
+            this.delegate = checkNotNull(delegate, "delegate");
+        }
+
+        public Builder latency(LatencyDistribution latency) {
+            this.latency = checkNotNull(latency, "latency");
+            return this;
+        }
+
+        /** Bandwidth cap per connection, 0 (default) means unlimited. */
+        public Builder bytesPerSecond(long bytesPerSecond) {
+            checkArgument(bytesPerSecond >= 0, "bytesPerSecond must not be negative");
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /** Probability in [0, 1] that a request fails with HTTP 503, 0 (default) disables throttling. */
+        public Builder throttleProbability(double throttleProbability) {
+            checkArgument(throttleProbability >= 0 && throttleProbability <= 1,
+                    "throttleProbability must be between 0 and 1");
+            this.throttleProbability = throttleProbability;
+            return this;
+        }
+
+        /** Maximum number of entries per listing page, 0 (default) means the delegate's limit. */
+        public Builder maxPageSize(int maxPageSize) {
+            checkArgument(maxPageSize >= 0, "maxPageSize must not be negative");
+            this.maxPageSize = maxPageSize;
+            return this;
+        }
+
+        /** Part size of multipart putBlob, raised to the delegate's minimum part size if needed. */
+        public Builder multipartPartSize(long multipartPartSize) {
+            checkArgument(multipartPartSize > 0, "multipartPartSize must be positive");
+            this.multipartPartSize = multipartPartSize;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder sleeper(Sleeper sleeper) {
+            this.sleeper = checkNotNull(sleeper, "sleeper");
+            return this;
+        }
+
+        public SimulatedBlobStore build() {
+            return new SimulatedBlobStore(this);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.jclouds.examples.blobstore.simulation;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Caps the read rate of a single stream, simulating the bandwidth of one connection.
+ *
+ * The delay is computed from the bytes read so far rather than from wall-clock time,
+ * so the total injected delay only depends on the stream size.
+ */
+class ThrottledInputStream extends FilterInputStream {
+
+    private final long bytesPerSecond;
+    private final SimulatedBlobStore.Sleeper sleeper;
+    private long bytesRead;
+    private long delayedNanos;
+
+    ThrottledInputStream(InputStream in, long bytesPerSecond, SimulatedBlobStore.Sleeper sleeper) {
+        super(in);
+        this.bytesPerSecond = bytesPerSecond;
+        this.sleeper = sleeper;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            throttle(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            throttle(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        if (skipped > 0) {
+            throttle(skipped);
+        }
+        return skipped;
+    }
+
+    private void throttle(long n) {
+        bytesRead += n;
+        long dueNanos = SimulatedBlobStore.transferNanos(bytesRead, bytesPerSecond);
+        if (dueNanos > delayedNanos) {
+            sleeper.sleepNanos(dueNanos - delayedNanos);
+            delayedNanos = dueNanos;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.jclouds.examples.blobstore.simulation;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.jclouds.io.Payload;
+import org.jclouds.io.payloads.BasePayload;
+
+/**
+ * Payload that reads another payload through a {@link ThrottledInputStream}.
+ *
+ * The wrapped payload is only opened when this payload is read, and it shares the wrapped content
+ * metadata so length and MD5 stay visible. It must be placed on a new blob rather than swapped into a
+ * live one, because {@code Blob.setPayload} releases the previous payload and closes its stream.
+ */
+class ThrottledPayload extends BasePayload<Payload> {
+
+    private final long bytesPerSecond;
+    private final SimulatedBlobStore.Sleeper sleeper;
+
+    ThrottledPayload(Payload payload, long bytesPerSecond, SimulatedBlobStore.Sleeper sleeper) {
+        super(payload);
+        this.bytesPerSecond = bytesPerSecond;
+        this.sleeper = sleeper;
+        setContentMetadata(payload.getContentMetadata());
+        setSensitive(payload.isSensitive());
+    }
+
+    @Override
+    public InputStream openStream() throws IOException {
+        return new ThrottledInputStream(content.openStream(), bytesPerSecond, sleeper);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return content.isRepeatable();
+    }
+
+    @Override
+    public void release() {
+        content.release();
+    }
+}
@@ -0,0 +1,338 @@
+package org.jclouds.examples.blobstore.simulation;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.GetOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
+
+import com.google.inject.Module;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SimulatedBlobStoreTest {
+
+    private static final String PROVIDER = "transient"; // In-memory jclouds provider, no Docker needed
+
+    private static final Logger logger = LoggerFactory.getLogger(SimulatedBlobStoreTest.class.getName());
+
+    private static final String CONTAINER = "testcontainer";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private BlobStoreContext blobStoreContext;
+    private BlobStore transientBlobStore;
+
+    // Records the injected delays instead of sleeping, so the tests run instantly and deterministically
+    private final AtomicLong sleptNanos = new AtomicLong();
+    private final SimulatedBlobStore.Sleeper recordingSleeper = sleptNanos::addAndGet;
+
+    @Before
+    public void setUp() {
+        blobStoreContext = ContextBuilder.newBuilder(PROVIDER)
+                .modules(ImmutableSet.<Module>of(new SLF4JLoggingModule()))
+                .buildView(BlobStoreContext.class);
+        transientBlobStore = blobStoreContext.getBlobStore();
+        transientBlobStore.createContainerInLocation(null, CONTAINER);
+    }
+
+    @After
+    public void tearDown() {
+        blobStoreContext.close();
+    }
+
+    @Test
+    public void testLatencyAndBandwidth() throws Exception {
+        logger.info("Running simulated latency and bandwidth test...");
+
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+                .bytesPerSecond(1000)
+                .sleeper(recordingSleeper)
+                .build();
+
+        // 10 ms latency plus 500 bytes at 1000 bytes/s
+        Blob blob = blobStore.blobBuilder("jclouds/hello.bin")
+                .payload(new byte[500])
+                .build();
+        blobStore.putBlob(CONTAINER, blob);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(510), sleptNanos.get());
+
+        // The download is throttled while the payload is read
+        Blob downloaded = blobStore.getBlob(CONTAINER, "jclouds/hello.bin");
+        assertNotNull("Blob should not be null", downloaded);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(520), sleptNanos.get());
+        assertEquals(500, downloaded.getPayload().openStream().readAllBytes().length);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1020), sleptNanos.get());
+
+        assertEquals(2, blobStore.getRequestCount());
+        assertEquals(Duration.ofMillis(1020), blobStore.getInjectedDelay());
+    }
+
+    @Test
+    public void testInputStreamUploadIsThrottled() throws Exception {
+        logger.info("Running simulated InputStream upload test...");
+
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+                .bytesPerSecond(1000)
+                .sleeper(recordingSleeper)
+                .build();
+
+        // No content length is known up front, the bandwidth cap applies while the stream is read.
+        // A FileInputStream fails once closed, so the stream must stay open until the delegate has read it.
+        byte[] content = new byte[500];
+        content[499] = 42;
+        File source = temporaryFolder.newFile();
+        Files.write(source.toPath(), content);
+        Blob blob = blobStore.blobBuilder("jclouds/streamed.bin")
+                .payload(new FileInputStream(source))
+                .build();
+        blobStore.putBlob(CONTAINER, blob);
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(510), sleptNanos.get());
+        Blob stored = transientBlobStore.getBlob(CONTAINER, "jclouds/streamed.bin");
+        assertNotNull("Blob should not be null", stored);
+        assertArrayEquals(content, stored.getPayload().openStream().readAllBytes());
+    }
+
+    @Test
+    public void testInputStreamDownloadIsThrottled() throws Exception {
+        logger.info("Running simulated InputStream download test...");
+
+        byte[] content = new byte[500];
+        content[499] = 42;
+        File source = temporaryFolder.newFile();
+        Files.write(source.toPath(), content);
+
+        // Stands in for a remote provider whose downloads are streamed from an open connection
+        BlobStore streamingBlobStore = new ForwardingBlobStore(transientBlobStore) {
+            @Override
+            public Blob getBlob(String container, String name, GetOptions options) {
+                try {
+                    return blobBuilder(name)
+                            .payload(new FileInputStream(source))
+                            .contentLength(content.length)
+                            .build();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Blob getBlob(String container, String name) {
+                return getBlob(container, name, GetOptions.NONE);
+            }
+        };
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(streamingBlobStore)
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+                .bytesPerSecond(1000)
+                .sleeper(recordingSleeper)
+                .build();
+
+        Blob downloaded = blobStore.getBlob(CONTAINER, "jclouds/streamed.bin");
+        assertNotNull("Blob should not be null", downloaded);
+        assertArrayEquals(content, downloaded.getPayload().openStream().readAllBytes());
+        assertEquals(Duration.ofMillis(510), blobStore.getInjectedDelay());
+    }
+
+    @Test
+    public void testMultipartUploadIsChargedPerPart() throws Exception {
+        logger.info("Running simulated multipart upload test...");
+
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+                .bytesPerSecond(1000)
+                .multipartPartSize(200)
+                .sleeper(recordingSleeper)
+                .build();
+
+        byte[] content = new byte[500];
+        content[499] = 42;
+        Blob blob = blobStore.blobBuilder("jclouds/multipart.bin")
+                .payload(content)
+                .build();
+        blobStore.putBlob(CONTAINER, blob, PutOptions.Builder.multipart());
+
+        // Initiate, three parts of 200, 200 and 100 bytes, complete
+        assertEquals(5, blobStore.getRequestCount());
+        assertEquals(Duration.ofMillis(550), blobStore.getInjectedDelay());
+        Blob stored = transientBlobStore.getBlob(CONTAINER, "jclouds/multipart.bin");
+        assertNotNull("Blob should not be null", stored);
+        assertArrayEquals(content, stored.getPayload().openStream().readAllBytes());
+    }
+
+    @Test
+    public void testDownloadBlob() throws Exception {
+        logger.info("Running simulated downloadBlob test...");
+
+        byte[] content = new byte[500];
+        content[499] = 42;
+        transientBlobStore.putBlob(CONTAINER, transientBlobStore.blobBuilder("jclouds/download.bin")
+                .payload(content)
+                .build());
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .latency(LatencyDistribution.fixed(Duration.ofMillis(10)))
+                .bytesPerSecond(1000)
+                .sleeper(recordingSleeper)
+                .build();
+
+        // One GET plus 500 bytes at 1000 bytes/s
+        File destination = temporaryFolder.newFile();
+        blobStore.downloadBlob(CONTAINER, "jclouds/download.bin", destination);
+        assertArrayEquals(content, Files.readAllBytes(destination.toPath()));
+        assertEquals(1, blobStore.getRequestCount());
+        assertEquals(Duration.ofMillis(510), blobStore.getInjectedDelay());
+
+        // The parallel variant needs a HEAD for the size, then one ranged GET per part
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            File parallelDestination = temporaryFolder.newFile();
+            blobStore.downloadBlob(CONTAINER, "jclouds/download.bin", parallelDestination, executor);
+            assertArrayEquals(content, Files.readAllBytes(parallelDestination.toPath()));
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(3, blobStore.getRequestCount());
+        assertEquals(Duration.ofMillis(1030), blobStore.getInjectedDelay());
+    }
+
+    @Test
+    public void testRemoveBlobsIsChargedPerBatch() {
+        logger.info("Running simulated bulk delete test...");
+
+        for (int i = 0; i < 3; i++) {
+            transientBlobStore.putBlob(CONTAINER, transientBlobStore.blobBuilder("jclouds/object-" + i + ".bin")
+                    .payload(new byte[1])
+                    .build());
+        }
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .sleeper(recordingSleeper)
+                .build();
+
+        blobStore.removeBlobs(CONTAINER,
+                ImmutableList.of("jclouds/object-0.bin", "jclouds/object-1.bin", "jclouds/object-2.bin"));
+
+        assertEquals(1, blobStore.getRequestCount());
+        assertFalse(transientBlobStore.blobExists(CONTAINER, "jclouds/object-0.bin"));
+        assertFalse(transientBlobStore.blobExists(CONTAINER, "jclouds/object-2.bin"));
+    }
+
+    @Test
+    public void testSameSeedGivesSameDelays() {
+        logger.info("Running simulated latency determinism test...");
+
+        long[] delays = new long[2];
+        for (int run = 0; run < delays.length; run++) {
+            SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                    .latency(LatencyDistribution.logNormal(Duration.ofMillis(20), 0.5))
+                    .seed(7L)
+                    .sleeper(recordingSleeper)
+                    .build();
+            for (int i = 0; i < 20; i++) {
+                blobStore.blobExists(CONTAINER, "jclouds/missing.bin");
+            }
+            delays[run] = blobStore.getInjectedDelay().toNanos();
+        }
+        assertEquals(delays[0], delays[1]);
+    }
+
+    @Test
+    public void testThrottling() {
+        logger.info("Running simulated throttling test...");
+
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .throttleProbability(1.0)
+                .sleeper(recordingSleeper)
+                .build();
+
+        Blob blob = blobStore.blobBuilder("jclouds/throttled.bin")
+                .payload(new byte[10])
+                .build();
+        try {
+            blobStore.putBlob(CONTAINER, blob);
+            fail("Request should have been throttled");
+        } catch (HttpResponseException e) {
+            assertEquals(503, e.getResponse().getStatusCode());
+        }
+
+        // A throttled request never reaches the underlying store
+        assertFalse(transientBlobStore.blobExists(CONTAINER, "jclouds/throttled.bin"));
+        assertEquals(1, blobStore.getThrottledRequestCount());
+    }
+
+    @Test
+    public void testListingPageSize() {
+        logger.info("Running simulated listing page size test...");
+
+        for (int i = 0; i < 5; i++) {
+            transientBlobStore.putBlob(CONTAINER, transientBlobStore.blobBuilder("jclouds/object-" + i + ".bin")
+                    .payload(new byte[1])
+                    .build());
+        }
+        SimulatedBlobStore blobStore = SimulatedBlobStore.builder(transientBlobStore)
+                .maxPageSize(2)
+                .sleeper(recordingSleeper)
+                .build();
+
+        int listed = 0;
+        int pages = 0;
+        String marker = null;
+        do {
+            ListContainerOptions options = ListContainerOptions.Builder.recursive();
+            if (marker != null) {
+                options.afterMarker(marker);
+            }
+            PageSet<? extends StorageMetadata> page = blobStore.list(CONTAINER, options);
+            listed += page.size();
+            pages++;
+            marker = page.getNextMarker();
+        } while (marker != null);
+
+        assertEquals(5, listed);
+        assertEquals(3, pages);
+        assertEquals(3, blobStore.getRequestCount());
+
+        // The page size cap is applied to a copy, the caller's options stay unchanged
+        ListContainerOptions reused = ListContainerOptions.Builder.recursive();
+        blobStore.list(CONTAINER, reused);
+        assertNull(reused.getMaxResults());
+
+        // Without the simulation the transient provider returns everything in one page
+        assertNull(transientBlobStore.list(CONTAINER, ListContainerOptions.Builder.recursive()).getNextMarker());
+    }
+}